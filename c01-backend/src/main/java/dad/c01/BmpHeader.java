@@ -0,0 +1,102 @@
+package dad.c01;
+
+/**
+ * Width, height and bit depth read from a BMP file header, so uploads can be
+ * validated and sized before they are published to JMS.
+ */
+public class BmpHeader {
+
+  private static final int FILE_HEADER_SIZE = 14;
+  private static final int CORE_HEADER_SIZE = 12;
+  private static final int MAX_DIMENSION = 32768;
+  private static final int BI_RGB = 0;
+  private static final int BI_RLE8 = 1;
+  private static final int BI_RLE4 = 2;
+  private static final int BI_BITFIELDS = 3;
+
+  final int width;
+  final int height;
+  final int bitDepth;
+
+  private BmpHeader(int width, int height, int bitDepth) {
+    this.width = width;
+    this.height = height;
+    this.bitDepth = bitDepth;
+  }
+
+  /**
+   * Parses the BITMAPFILEHEADER and the DIB header (BITMAPCOREHEADER or
+   * BITMAPINFOHEADER and later).
+   *
+   * @throws IllegalArgumentException if the data is not a readable BMP
+   */
+  static BmpHeader parse(byte[] data) {
+    if (data == null || data.length < FILE_HEADER_SIZE + CORE_HEADER_SIZE)
+      throw new IllegalArgumentException("File too small to be a BMP");
+    if (data[0] != 'B' || data[1] != 'M')
+      throw new IllegalArgumentException("Not a BMP file");
+    long pixelOffset = readInt(data, 10) & 0xFFFFFFFFL;
+    if (pixelOffset >= data.length)
+      throw new IllegalArgumentException("BMP pixel data offset out of range");
+
+    int dibSize = readInt(data, 14);
+    int width;
+    int height;
+    int bitDepth;
+    int compression = BI_RGB;
+    if (dibSize == CORE_HEADER_SIZE) {
+      width = readShort(data, 18);
+      height = readShort(data, 20);
+      bitDepth = readShort(data, 24);
+    } else if (dibSize >= 40 && data.length >= FILE_HEADER_SIZE + 40) {
+      width = readInt(data, 18);
+      height = Math.abs(readInt(data, 22));
+      bitDepth = readShort(data, 28);
+      compression = readInt(data, 30);
+    } else {
+      throw new IllegalArgumentException("Unsupported BMP header size " + dibSize);
+    }
+
+    if (width <= 0 || height <= 0 || width > MAX_DIMENSION || height > MAX_DIMENSION)
+      throw new IllegalArgumentException("Invalid BMP dimensions " + width + "x" + height);
+    switch (bitDepth) {
+      case 1, 4, 8, 16, 24, 32 -> { }
+      default -> throw new IllegalArgumentException("Unsupported BMP bit depth " + bitDepth);
+    }
+    switch (compression) {
+      case BI_RGB, BI_BITFIELDS -> {
+        long rowBytes = ((width * (long) bitDepth + 31) / 32) * 4L;
+        if (data.length < pixelOffset + rowBytes * height)
+          throw new IllegalArgumentException("BMP pixel data truncated");
+      }
+      case BI_RLE8, BI_RLE4 -> { }
+      default -> throw new IllegalArgumentException("Unsupported BMP compression " + compression);
+    }
+    return new BmpHeader(width, height, bitDepth);
+  }
+
+  /** Number of pixels ImageIO will decode on the zoom servers. */
+  long sourcePixels() {
+    return (long) width * height;
+  }
+
+  /**
+   * Number of pixels the zoom servers will produce for this image at the given
+   * zoom. Sides are capped at 32768, so this cannot overflow for any int zoom
+   * the upload handler accepts.
+   */
+  long outputPixels(int zoomPercent) {
+    double scale = zoomPercent / 100.0;
+    long w = Math.max(1, Math.round(width * scale));
+    long h = Math.max(1, Math.round(height * scale));
+    return w * h;
+  }
+
+  private static int readShort(byte[] b, int off) {
+    return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8;
+  }
+
+  private static int readInt(byte[] b, int off) {
+    return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24;
+  }
+}
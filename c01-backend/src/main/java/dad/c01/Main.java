@@ -1,5 +1,6 @@
 package dad.c01;
 
+import dad.metrics.MetricsBuffer;
 import io.javalin.Javalin;
 import io.javalin.http.UploadedFile;
 
@@ -11,6 +12,9 @@ import java.lang.management.OperatingSystemMXBean;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 public class Main {
@@ -19,18 +23,35 @@ public class Main {
       ? System.getenv("JMS_URL") : System.getProperty("jms.url",
       "failover:(tcp://c02:61616)?initialReconnectDelay=1000&maxReconnectDelay=30000&useExponentialBackOff=true");
   private static final String TOPIC_NAME = "bmp.topic";
+  private static final String LARGE_TOPIC_NAME = "bmp.large.topic";
+  private static final long LARGE_JOB_PIXELS = Long.parseLong(
+      System.getenv("LARGE_JOB_PIXELS") != null ? System.getenv("LARGE_JOB_PIXELS") : System.getProperty("large.job.pixels", "4000000"));
+  private static final int MAX_ZOOM_PERCENT = 1000;
+  // Both limits stay below Integer.MAX_VALUE: the zoom servers decode into and draw onto int-indexed rasters.
+  private static final long MAX_SOURCE_PIXELS = Math.min(Integer.MAX_VALUE, Long.parseLong(
+      System.getenv("MAX_SOURCE_PIXELS") != null ? System.getenv("MAX_SOURCE_PIXELS") : System.getProperty("max.source.pixels", "25000000")));
+  private static final long MAX_OUTPUT_PIXELS = Math.min(Integer.MAX_VALUE, Long.parseLong(
+      System.getenv("MAX_OUTPUT_PIXELS") != null ? System.getenv("MAX_OUTPUT_PIXELS") : System.getProperty("max.output.pixels", "50000000")));
+  private static final String METRICS_TOPIC_NAME = "metrics.topic";
+  private static final long METRICS_PUSH_MS = Long.parseLong(
+      System.getenv("METRICS_PUSH_MS") != null ? System.getenv("METRICS_PUSH_MS") : System.getProperty("metrics.push.ms", "0"));
   private static final int PORT = Integer.parseInt(
       System.getenv("PORT") != null ? System.getenv("PORT") : System.getProperty("port", "7000"));
 
   private final Map<String, JobStatus> jobs = new ConcurrentHashMap<>();
+  private final MetricsBuffer metrics = new MetricsBuffer("c01");
   private Connection jmsConn;
   private Session jmsSession;
   private MessageProducer producer;
+  private MessageProducer largeProducer;
   private Topic topic;
+  private Topic largeTopic;
 
   public static void main(String[] args) throws Exception {
     Main app = new Main();
+    app.metrics.start();
     app.startJms();
+    app.startMetricsPush();
     app.startHttp();
   }
 
@@ -43,7 +64,10 @@ public class Main {
         jmsSession = jmsConn.createSession(false, Session.AUTO_ACKNOWLEDGE);
         topic = jmsSession.createTopic(TOPIC_NAME);
         producer = jmsSession.createProducer(topic);
-        System.out.println("[C01] JMS connected to " + JMS_URL + ", topic " + TOPIC_NAME);
+        largeTopic = jmsSession.createTopic(LARGE_TOPIC_NAME);
+        largeProducer = jmsSession.createProducer(largeTopic);
+        System.out.println("[C01] JMS connected to " + JMS_URL + ", topics " + TOPIC_NAME + ", " + LARGE_TOPIC_NAME
+            + " (large lane above " + LARGE_JOB_PIXELS + " output pixels)");
         return;
       } catch (Exception e) {
         if (i == 59) throw e;
@@ -53,6 +77,34 @@ public class Main {
     }
   }
 
+  private void startMetricsPush() throws JMSException {
+    if (METRICS_PUSH_MS <= 0) return;
+    Session metricsSession = jmsConn.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    MessageProducer metricsProducer = metricsSession.createProducer(metricsSession.createTopic(METRICS_TOPIC_NAME));
+    metricsProducer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    String osName = os.getName() + " " + os.getArch();
+    ScheduledExecutorService pusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "c01-metrics-push");
+      t.setDaemon(true);
+      return t;
+    });
+    long[] lastPush = {0};
+    pusher.scheduleAtFixedRate(() -> {
+      try {
+        long until = metrics.latestSampleTs();
+        if (until <= lastPush[0]) return;
+        TextMessage msg = metricsSession.createTextMessage(metrics.toJson(lastPush[0], until, osName));
+        msg.setStringProperty("node", "c01");
+        metricsProducer.send(msg);
+        lastPush[0] = until;
+      } catch (Exception e) {
+        System.err.println("[C01] metrics push failed: " + e.getMessage());
+      }
+    }, METRICS_PUSH_MS, METRICS_PUSH_MS, TimeUnit.MILLISECONDS);
+    System.out.println("[C01] pushing metrics batches to JMS topic " + METRICS_TOPIC_NAME + " every " + METRICS_PUSH_MS + " ms");
+  }
+
   private void startHttp() {
     Javalin app = Javalin.create().start(PORT);
 
@@ -79,21 +131,53 @@ public class Main {
           return;
         }
         int zoomPercent = Integer.parseInt(zoomStr);
+        if (zoomPercent <= 0 || zoomPercent > MAX_ZOOM_PERCENT) {
+          System.err.println("[C01] UPLOAD reject: zoomPercent " + zoomPercent);
+          ctx.status(400).json(Map.of("error", "Invalid zoomPercent"));
+          return;
+        }
+
+        byte[] data = file.content().readAllBytes();
+        BmpHeader header;
+        try {
+          header = BmpHeader.parse(data);
+        } catch (IllegalArgumentException e) {
+          System.err.println("[C01] UPLOAD reject: " + e.getMessage());
+          ctx.status(400).json(Map.of("error", "Invalid BMP: " + e.getMessage()));
+          return;
+        }
+        if (header.sourcePixels() > MAX_SOURCE_PIXELS) {
+          System.err.println("[C01] UPLOAD reject: " + header.width + "x" + header.height + " exceeds " + MAX_SOURCE_PIXELS + " source pixels");
+          ctx.status(400).json(Map.of("error", "Image too large: " + header.width + "x" + header.height));
+          return;
+        }
+        long costPixels = header.outputPixels(zoomPercent);
+        if (costPixels > MAX_OUTPUT_PIXELS) {
+          System.err.println("[C01] UPLOAD reject: " + costPixels + " output pixels exceeds " + MAX_OUTPUT_PIXELS);
+          ctx.status(400).json(Map.of("error", "Zoomed image too large: " + costPixels + " pixels"));
+          return;
+        }
+        boolean large = costPixels > LARGE_JOB_PIXELS;
+
         String requestId = UUID.randomUUID().toString();
         String pictureId = UUID.randomUUID().toString();
         jobs.put(requestId, new JobStatus("pending", null));
-
-        byte[] data = file.content().readAllBytes();
-        System.out.println("[C01] UPLOAD image loaded: " + data.length + " bytes, requestId=" + requestId + " pictureId=" + pictureId + " zoom%=" + zoomPercent);
+        System.out.println("[C01] UPLOAD image loaded: " + data.length + " bytes, " + header.width + "x" + header.height
+            + "x" + header.bitDepth + "bpp, requestId=" + requestId + " pictureId=" + pictureId + " zoom%=" + zoomPercent
+            + " outputPixels=" + costPixels);
 
         BytesMessage msg = jmsSession.createBytesMessage();
         msg.setStringProperty("requestId", requestId);
         msg.setIntProperty("zoomPercent", zoomPercent);
         msg.setStringProperty("pictureId", pictureId);
+        msg.setIntProperty("width", header.width);
+        msg.setIntProperty("height", header.height);
+        msg.setIntProperty("bitDepth", header.bitDepth);
+        msg.setLongProperty("costPixels", costPixels);
         msg.writeBytes(data);
-        producer.send(msg);
+        (large ? largeProducer : producer).send(msg);
 
-        System.out.println("[C01] UPLOAD published to JMS topic " + TOPIC_NAME + " ok");
+        System.out.println("[C01] UPLOAD published to JMS topic " + (large ? LARGE_TOPIC_NAME : TOPIC_NAME) + " ok");
         ctx.json(Map.of("requestId", requestId, "pictureId", pictureId));
       } catch (NumberFormatException e) {
         System.err.println("[C01] UPLOAD invalid zoomPercent: " + e.getMessage());
@@ -139,13 +223,23 @@ public class Main {
 
     app.get("/metrics", ctx -> {
       OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+      String since = ctx.queryParam("since");
+      if (since != null) {
+        long sinceMs;
+        try {
+          sinceMs = Long.parseLong(since);
+        } catch (NumberFormatException e) {
+          ctx.status(400).json(Map.of("error", "Invalid since"));
+          return;
+        }
+        ctx.contentType("application/json").result(metrics.toJson(sinceMs, os.getName() + " " + os.getArch()));
+        return;
+      }
       Runtime rt = Runtime.getRuntime();
       long total = rt.totalMemory();
       long free = rt.freeMemory();
       double ramUsage = total > 0 ? ((total - free) * 100.0 / total) : 0;
-      double load = os.getSystemLoadAverage() >= 0 ? os.getSystemLoadAverage() : 0;
-      int processors = os.getAvailableProcessors();
-      double cpuUsage = processors > 0 ? Math.min(100, load * 100.0 / processors) : 0;
+      double cpuUsage = metrics.cpuUsage();
       ctx.json(Map.of(
           "node", "c01",
           "osName", os.getName() + " " + os.getArch(),
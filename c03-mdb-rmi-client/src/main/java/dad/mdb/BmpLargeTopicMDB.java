@@ -0,0 +1,24 @@
+package dad.mdb;
+
+import jakarta.ejb.ActivationConfigProperty;
+import jakarta.ejb.MessageDriven;
+import jakarta.ejb.TransactionAttribute;
+import jakarta.ejb.TransactionAttributeType;
+import jakarta.jms.MessageListener;
+
+/**
+ * Large-job lane: same processing as {@link BmpTopicMDB}, but subscribed to
+ * bmp.large.topic with its own container and session limit so big zooms
+ * cannot hold up the small-job lane.
+ */
+@MessageDriven(activationConfig = {
+    @ActivationConfigProperty(propertyName = "destinationType", propertyValue = "jakarta.jms.Topic"),
+    @ActivationConfigProperty(propertyName = "destination", propertyValue = "bmp.large.topic"),
+    @ActivationConfigProperty(propertyName = "connectionFactoryLookup", propertyValue = "jms/InboundConnectionFactory"),
+    @ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge"),
+    @ActivationConfigProperty(propertyName = "subscriptionDurability", propertyValue = "NonDurable"),
+    @ActivationConfigProperty(propertyName = "maxSessions", propertyValue = "2")
+})
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class BmpLargeTopicMDB extends BmpTopicMDB implements MessageListener {
+}
@@ -22,7 +22,8 @@ import java.rmi.registry.Registry;
     @ActivationConfigProperty(propertyName = "destination", propertyValue = "bmp.topic"),
     @ActivationConfigProperty(propertyName = "connectionFactoryLookup", propertyValue = "jms/InboundConnectionFactory"),
     @ActivationConfigProperty(propertyName = "acknowledgeMode", propertyValue = "Auto-acknowledge"),
-    @ActivationConfigProperty(propertyName = "subscriptionDurability", propertyValue = "NonDurable")
+    @ActivationConfigProperty(propertyName = "subscriptionDurability", propertyValue = "NonDurable"),
+    @ActivationConfigProperty(propertyName = "maxSessions", propertyValue = "8")
 })
 @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
 public class BmpTopicMDB implements MessageListener {
@@ -41,7 +42,8 @@ public class BmpTopicMDB implements MessageListener {
       String requestId = getStringProp(msg, "requestId", "unknown");
       int zoomPercent = getIntProp(msg, "zoomPercent", 100);
       String pictureId = getStringProp(msg, "pictureId", null);
-      System.out.println("[C03] MDB received message: requestId=" + requestId + " pictureId=" + pictureId + " zoom%=" + zoomPercent);
+      System.out.println("[C03] MDB received message on " + msg.getJMSDestination() + ": requestId=" + requestId
+          + " pictureId=" + pictureId + " zoom%=" + zoomPercent + " outputPixels=" + getLongProp(msg, "costPixels", -1));
 
       byte[] bmpBytes = msg.getBody(byte[].class);
       if (bmpBytes == null) bmpBytes = new byte[0];
@@ -101,6 +103,10 @@ public class BmpTopicMDB implements MessageListener {
     try { return m.getIntProperty(name); } catch (Exception e) { return def; }
   }
 
+  private static long getLongProp(Message m, String name, long def) {
+    try { return m.propertyExists(name) ? m.getLongProperty(name) : def; } catch (Exception e) { return def; }
+  }
+
   private ZoomService lookupRmi(String host) throws Exception {
     Registry reg = LocateRegistry.getRegistry(host, RMI_PORT);
     return (ZoomService) reg.lookup("ZoomService");
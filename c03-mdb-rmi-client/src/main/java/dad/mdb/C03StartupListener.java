@@ -9,7 +9,7 @@ public class C03StartupListener implements ServletContextListener {
 
   @Override
   public void contextInitialized(ServletContextEvent sce) {
-    System.out.println("[C03] BMP app started; MDB -> bmp.topic @ c02:61616 (TomEE Plume, remote broker)");
+    System.out.println("[C03] BMP app started; MDBs -> bmp.topic + bmp.large.topic @ c02:61616 (TomEE Plume, remote broker)");
   }
 
   @Override
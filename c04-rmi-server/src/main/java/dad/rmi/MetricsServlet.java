@@ -1,5 +1,6 @@
 package dad.rmi;
 
+import dad.metrics.MetricsBuffer;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,19 +10,43 @@ import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
 
-@WebServlet(urlPatterns = "/metrics")
+@WebServlet(urlPatterns = "/metrics", loadOnStartup = 1)
 public class MetricsServlet extends HttpServlet {
 
+  private final MetricsBuffer buffer = new MetricsBuffer("c04");
+
+  @Override
+  public void init() {
+    buffer.start();
+  }
+
+  @Override
+  public void destroy() {
+    buffer.stop();
+  }
+
   @Override
   protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
     OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    String since = req.getParameter("since");
+    if (since != null) {
+      long sinceMs;
+      try {
+        sinceMs = Long.parseLong(since);
+      } catch (NumberFormatException e) {
+        resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid since");
+        return;
+      }
+      resp.setContentType("application/json");
+      resp.setStatus(HttpServletResponse.SC_OK);
+      resp.getWriter().print(buffer.toJson(sinceMs, os.getName() + " " + os.getArch()));
+      return;
+    }
     Runtime rt = Runtime.getRuntime();
     long total = rt.totalMemory();
     long free = rt.freeMemory();
     double ramUsage = total > 0 ? ((total - free) * 100.0 / total) : 0;
-    double load = os.getSystemLoadAverage() >= 0 ? os.getSystemLoadAverage() : 0;
-    int processors = os.getAvailableProcessors();
-    double cpuUsage = processors > 0 ? Math.min(100, load * 100.0 / processors) : 0;
+    double cpuUsage = buffer.cpuUsage();
     resp.setContentType("application/json");
     resp.setStatus(HttpServletResponse.SC_OK);
     resp.getWriter().print(String.format(
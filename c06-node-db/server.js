@@ -14,6 +14,7 @@ const MONGO_URL = process.env.MONGO_URL || 'mongodb://localhost:27017';
 const MONGO_DB = process.env.MONGO_DB || 'snmpdb';
 const PORT = parseInt(process.env.PORT || '3000', 10);
 const SNMP_COLLECT_INTERVAL_MS = parseInt(process.env.SNMP_COLLECT_INTERVAL_MS || '60000', 10);
+const SNMP_RETENTION_SECONDS = parseInt(process.env.SNMP_RETENTION_SECONDS || '86400', 10);
 
 const app = express();
 app.use(cors());
@@ -67,6 +68,21 @@ async function initMySQL() {
   throw new Error('MySQL init failed');
 }
 
+async function ensureSnmpTtlIndex() {
+  const col = mongoDb.collection('snmp_values');
+  const indexes = await col.indexes().catch(() => []);
+  const existing = indexes.find((ix) => Object.keys(ix.key).length === 1 && ix.key.timestamp === 1);
+  if (!existing) {
+    await col.createIndex({ timestamp: 1 }, { expireAfterSeconds: SNMP_RETENTION_SECONDS });
+  } else if (existing.expireAfterSeconds !== SNMP_RETENTION_SECONDS) {
+    await mongoDb.command({
+      collMod: 'snmp_values',
+      index: { keyPattern: { timestamp: 1 }, expireAfterSeconds: SNMP_RETENTION_SECONDS },
+    });
+    console.log('[C06] snmp_values TTL set to ' + SNMP_RETENTION_SECONDS + 's');
+  }
+}
+
 async function initMongo() {
   for (let i = 0; i < 30; i++) {
     try {
@@ -74,6 +90,7 @@ async function initMongo() {
       await mongoClient.connect();
       mongoDb = mongoClient.db(MONGO_DB);
       await mongoDb.collection('snmp_values').createIndex({ node: 1, timestamp: -1 }).catch(() => {});
+      await ensureSnmpTtlIndex().catch((e) => console.warn('[C06] snmp_values TTL index:', e.message));
       console.log('[C06] MongoDB connected');
       return;
     } catch (e) {
@@ -87,7 +104,11 @@ async function initMongo() {
 app.get('/api/snmp', async (req, res) => {
   try {
     const col = mongoDb.collection('snmp_values');
-    const docs = await col.find({}).sort({ timestamp: -1 }).limit(100).toArray();
+    const docs = await col.aggregate([
+      { $sort: { node: 1, timestamp: -1 } },
+      { $group: { _id: '$node', doc: { $first: '$$ROOT' } } },
+      { $replaceRoot: { newRoot: '$doc' } },
+    ]).toArray();
     res.json(docs);
   } catch (e) {
     res.status(500).json({ error: e.message });
@@ -174,14 +195,17 @@ app.get('/metrics', (req, res) => {
 });
 
 const NODES = [
-  { name: 'c01', url: 'http://c01:7000/metrics' },
-  { name: 'c02', url: 'http://c02:8080/metrics/metrics' },
-  { name: 'c03', url: 'http://c03:8080/c03/metrics' },
-  { name: 'c04', url: 'http://c04:8080/c04-rmi/metrics' },
-  { name: 'c05', url: 'http://c05:8080/c05-rmi/metrics' },
+  { name: 'c01', url: 'http://c01:7000/metrics', batch: true },
+  { name: 'c02', url: 'http://c02:8080/metrics/metrics', batch: true },
+  { name: 'c03', url: 'http://c03:8080/c03/metrics', batch: true },
+  { name: 'c04', url: 'http://c04:8080/c04-rmi/metrics', batch: true },
+  { name: 'c05', url: 'http://c05:8080/c05-rmi/metrics', batch: true },
   { name: 'c06', url: `http://localhost:${PORT}/metrics` },
 ];
 
+// Last sample timestamp (epoch ms) stored per node; batch nodes return everything newer.
+const lastSampleTs = {};
+
 function fetchMetrics(url) {
   return new Promise((resolve) => {
     const req = http.get(url, { timeout: 5000 }, (res) => {
@@ -200,10 +224,64 @@ function fetchMetrics(url) {
   });
 }
 
+async function seedLastSampleTs() {
+  const rows = await mongoDb.collection('snmp_values').aggregate([
+    { $match: { resolutionMs: { $exists: true } } },
+    { $group: { _id: '$node', timestamp: { $max: '$timestamp' } } },
+  ]).toArray();
+  for (const row of rows) {
+    if (row._id && row.timestamp) lastSampleTs[row._id] = new Date(row.timestamp).getTime();
+  }
+}
+
+function batchToDocs(batch) {
+  const docs = [];
+  const osName = batch.osName || 'unknown';
+  const r = batch.rollups || {};
+  (r.ts || []).forEach((ts, i) => {
+    docs.push({
+      node: batch.node,
+      osName,
+      cpuUsage: r.cpuAvg[i],
+      ramUsage: r.ramAvg[i],
+      cpuMin: r.cpuMin[i],
+      cpuMax: r.cpuMax[i],
+      ramMin: r.ramMin[i],
+      ramMax: r.ramMax[i],
+      resolutionMs: r.bucketMs,
+      timestamp: new Date(ts),
+    });
+  });
+  const s = batch.samples || {};
+  (s.ts || []).forEach((ts, i) => {
+    docs.push({
+      node: batch.node,
+      osName,
+      cpuUsage: s.cpu[i],
+      ramUsage: s.ram[i],
+      resolutionMs: batch.sampleMs,
+      timestamp: new Date(ts),
+    });
+  });
+  return docs;
+}
+
 async function collectSnmpFromAllNodes() {
   if (!mongoDb) return;
   for (const node of NODES) {
     try {
+      if (node.batch) {
+        const since = lastSampleTs[node.name] || 0;
+        const batch = await fetchMetrics(node.url + '?since=' + since);
+        if (batch && batch.node && batch.samples) {
+          const docs = batchToDocs(batch);
+          if (docs.length > 0) {
+            await mongoDb.collection('snmp_values').insertMany(docs);
+            lastSampleTs[node.name] = Math.max(since, ...batch.samples.ts);
+          }
+        }
+        continue;
+      }
       const metrics = await fetchMetrics(node.url);
       if (metrics && metrics.node) {
         await mongoDb.collection('snmp_values').insertOne({
@@ -220,7 +298,8 @@ async function collectSnmpFromAllNodes() {
   }
 }
 
-function startSnmpCollector() {
+async function startSnmpCollector() {
+  await seedLastSampleTs().catch((e) => console.warn('[C06] SNMP cursor seed error:', e.message));
   setInterval(() => {
     collectSnmpFromAllNodes().then(() => {
       console.log('[C06] SNMP collected from all nodes');
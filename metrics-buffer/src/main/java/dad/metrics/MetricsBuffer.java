@@ -0,0 +1,195 @@
+package dad.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples CPU and RAM usage every {@code metrics.sample.ms} into a fixed-size
+ * ring of primitive arrays and rolls samples up into min/max/avg buckets of
+ * {@code metrics.bucket.ms}. Recording a sample does not allocate.
+ */
+public class MetricsBuffer {
+
+  static final long SAMPLE_MS = Long.parseLong(System.getProperty("metrics.sample.ms", "1000"));
+  static final long BUCKET_MS = Long.parseLong(System.getProperty("metrics.bucket.ms", "60000"));
+  private static final int SAMPLE_CAPACITY = Integer.parseInt(System.getProperty("metrics.sample.capacity", "600"));
+  private static final int BUCKET_CAPACITY = Integer.parseInt(System.getProperty("metrics.bucket.capacity", "1440"));
+
+  private final String node;
+  private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+  private final long[] sampleTs = new long[SAMPLE_CAPACITY];
+  private final float[] sampleCpu = new float[SAMPLE_CAPACITY];
+  private final float[] sampleRam = new float[SAMPLE_CAPACITY];
+  private int sampleHead;
+  private int sampleCount;
+
+  private final long[] bucketTs = new long[BUCKET_CAPACITY];
+  private final float[] bucketCpuMin = new float[BUCKET_CAPACITY];
+  private final float[] bucketCpuMax = new float[BUCKET_CAPACITY];
+  private final float[] bucketCpuAvg = new float[BUCKET_CAPACITY];
+  private final float[] bucketRamMin = new float[BUCKET_CAPACITY];
+  private final float[] bucketRamMax = new float[BUCKET_CAPACITY];
+  private final float[] bucketRamAvg = new float[BUCKET_CAPACITY];
+  private int bucketHead;
+  private int bucketCount;
+
+  private long openBucketTs = -1;
+  private float openCpuMin, openCpuMax, openRamMin, openRamMax;
+  private double openCpuSum, openRamSum;
+  private int openSamples;
+
+  private ScheduledExecutorService sampler;
+
+  public MetricsBuffer(String node) {
+    this.node = node;
+  }
+
+  public synchronized void start() {
+    if (sampler != null) return;
+    sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, node + "-metrics-sampler");
+      t.setDaemon(true);
+      return t;
+    });
+    sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_MS, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stop() {
+    if (sampler != null) {
+      sampler.shutdownNow();
+      sampler = null;
+    }
+  }
+
+  private void sample() {
+    try {
+      Runtime rt = Runtime.getRuntime();
+      long total = rt.totalMemory();
+      long free = rt.freeMemory();
+      double ramUsage = total > 0 ? ((total - free) * 100.0 / total) : 0;
+      record(System.currentTimeMillis(), (float) cpuUsage(), (float) ramUsage);
+    } catch (Throwable t) {
+      System.err.println("[" + node.toUpperCase(Locale.ROOT) + "] metrics sample failed: " + t.getMessage());
+    }
+  }
+
+  /**
+   * Instantaneous system CPU usage in percent; falls back to the 1-minute load
+   * average when the JVM does not expose {@code getCpuLoad()}. Used for both
+   * buffered samples and the point-in-time {@code /metrics} response.
+   */
+  public double cpuUsage() {
+    if (os instanceof com.sun.management.OperatingSystemMXBean sunOs) {
+      double cpuLoad = sunOs.getCpuLoad();
+      if (cpuLoad >= 0) return cpuLoad * 100.0;
+    }
+    double load = os.getSystemLoadAverage() >= 0 ? os.getSystemLoadAverage() : 0;
+    int processors = os.getAvailableProcessors();
+    return processors > 0 ? Math.min(100, load * 100.0 / processors) : 0;
+  }
+
+  synchronized void record(long ts, float cpu, float ram) {
+    sampleTs[sampleHead] = ts;
+    sampleCpu[sampleHead] = cpu;
+    sampleRam[sampleHead] = ram;
+    sampleHead = (sampleHead + 1) % SAMPLE_CAPACITY;
+    if (sampleCount < SAMPLE_CAPACITY) sampleCount++;
+
+    long bucket = ts - ts % BUCKET_MS;
+    if (bucket != openBucketTs) {
+      closeBucket();
+      openBucketTs = bucket;
+      openCpuMin = openCpuMax = cpu;
+      openRamMin = openRamMax = ram;
+      openCpuSum = openRamSum = 0;
+      openSamples = 0;
+    }
+    openCpuMin = Math.min(openCpuMin, cpu);
+    openCpuMax = Math.max(openCpuMax, cpu);
+    openRamMin = Math.min(openRamMin, ram);
+    openRamMax = Math.max(openRamMax, ram);
+    openCpuSum += cpu;
+    openRamSum += ram;
+    openSamples++;
+  }
+
+  private void closeBucket() {
+    if (openSamples == 0) return;
+    bucketTs[bucketHead] = openBucketTs;
+    bucketCpuMin[bucketHead] = openCpuMin;
+    bucketCpuMax[bucketHead] = openCpuMax;
+    bucketCpuAvg[bucketHead] = (float) (openCpuSum / openSamples);
+    bucketRamMin[bucketHead] = openRamMin;
+    bucketRamMax[bucketHead] = openRamMax;
+    bucketRamAvg[bucketHead] = (float) (openRamSum / openSamples);
+    bucketHead = (bucketHead + 1) % BUCKET_CAPACITY;
+    if (bucketCount < BUCKET_CAPACITY) bucketCount++;
+  }
+
+  /** Timestamp of the newest recorded sample, or 0 if nothing has been sampled yet. */
+  public synchronized long latestSampleTs() {
+    return sampleCount > 0 ? sampleTs[(sampleHead - 1 + SAMPLE_CAPACITY) % SAMPLE_CAPACITY] : 0;
+  }
+
+  public String toJson(long since, String osName) {
+    return toJson(since, Long.MAX_VALUE, osName);
+  }
+
+  /**
+   * Columnar JSON batch of all samples with {@code since < ts <= until}
+   * (epoch ms), plus the closed rollup buckets in the same range that end
+   * before the oldest sample still held at full resolution.
+   */
+  public synchronized String toJson(long since, long until, String osName) {
+    StringBuilder ts = new StringBuilder();
+    StringBuilder cpu = new StringBuilder();
+    StringBuilder ram = new StringBuilder();
+    int first = (sampleHead - sampleCount + SAMPLE_CAPACITY) % SAMPLE_CAPACITY;
+    long oldestSample = sampleCount > 0 ? sampleTs[first] : Long.MAX_VALUE;
+    for (int i = 0; i < sampleCount; i++) {
+      int idx = (first + i) % SAMPLE_CAPACITY;
+      if (sampleTs[idx] <= since || sampleTs[idx] > until) continue;
+      append(ts, sampleTs[idx]);
+      append(cpu, sampleCpu[idx]);
+      append(ram, sampleRam[idx]);
+    }
+
+    StringBuilder bTs = new StringBuilder();
+    StringBuilder cpuMin = new StringBuilder(), cpuMax = new StringBuilder(), cpuAvg = new StringBuilder();
+    StringBuilder ramMin = new StringBuilder(), ramMax = new StringBuilder(), ramAvg = new StringBuilder();
+    int bFirst = (bucketHead - bucketCount + BUCKET_CAPACITY) % BUCKET_CAPACITY;
+    for (int i = 0; i < bucketCount; i++) {
+      int idx = (bFirst + i) % BUCKET_CAPACITY;
+      if (bucketTs[idx] <= since || bucketTs[idx] > until || bucketTs[idx] + BUCKET_MS > oldestSample) continue;
+      append(bTs, bucketTs[idx]);
+      append(cpuMin, bucketCpuMin[idx]);
+      append(cpuMax, bucketCpuMax[idx]);
+      append(cpuAvg, bucketCpuAvg[idx]);
+      append(ramMin, bucketRamMin[idx]);
+      append(ramMax, bucketRamMax[idx]);
+      append(ramAvg, bucketRamAvg[idx]);
+    }
+
+    return "{\"node\":\"" + node + "\",\"osName\":\"" + osName.replace("\"", "") + "\""
+        + ",\"now\":" + System.currentTimeMillis() + ",\"sampleMs\":" + SAMPLE_MS
+        + ",\"samples\":{\"ts\":[" + ts + "],\"cpu\":[" + cpu + "],\"ram\":[" + ram + "]}"
+        + ",\"rollups\":{\"bucketMs\":" + BUCKET_MS + ",\"ts\":[" + bTs + "]"
+        + ",\"cpuMin\":[" + cpuMin + "],\"cpuMax\":[" + cpuMax + "],\"cpuAvg\":[" + cpuAvg + "]"
+        + ",\"ramMin\":[" + ramMin + "],\"ramMax\":[" + ramMax + "],\"ramAvg\":[" + ramAvg + "]}}";
+  }
+
+  private static void append(StringBuilder sb, long v) {
+    if (sb.length() > 0) sb.append(',');
+    sb.append(v);
+  }
+
+  private static void append(StringBuilder sb, float v) {
+    if (sb.length() > 0) sb.append(',');
+    sb.append(String.format(Locale.ROOT, "%.2f", v));
+  }
+}